@@ -1,17 +1,21 @@
 package ru.ifmo.rain.tynyanov.arrayset;
 
 import java.util.*;
+import java.util.function.Consumer;
+
+public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
 
-public class ArraySet<T> extends AbstractSet<T> implements SortedSet<T> {
     private List<T> data;
     private Comparator<? super T> comparator;
+    private Object[] eytzinger;
 
     public ArraySet() {
         data = Collections.emptyList();
     }
 
     public ArraySet(Collection<? extends T> collection) {
-        data = new ArrayList<>(new TreeSet<>(collection));
+        this(collection, null);
     }
 
     public ArraySet(Comparator<? super T> comparator) {
@@ -20,27 +24,253 @@ public class ArraySet<T> extends AbstractSet<T> implements SortedSet<T> {
     }
 
     public ArraySet(Collection<? extends T> collection, Comparator<? super T> comparator) {
-        SortedSet<T> temp = new TreeSet<>(comparator);
-        temp.addAll(collection);
         this.comparator = comparator;
-        data = new ArrayList<>(temp);
+        if (collection instanceof SortedSet && Objects.equals(((SortedSet<?>) collection).comparator(), comparator)) {
+            data = new ArrayList<>(collection);
+        } else {
+            data = sortedDistinct(collection);
+        }
+    }
+
+    public static <T> ArraySet<T> withEytzingerIndex(Collection<? extends T> collection, Comparator<? super T> comparator) {
+        ArraySet<T> set = new ArraySet<>(collection, comparator);
+        set.eytzinger = new Object[set.data.size() + 1];
+        set.fillEytzinger(1, 0);
+        return set;
+    }
+
+    private ArraySet(Comparator<? super T> comparator, List<T> data) {
+        this.comparator = comparator;
+        this.data = data;
+    }
+
+    public static <T> ArraySet<T> union(ArraySet<T> first, ArraySet<T> second) {
+        return merge(MergeTask.Operation.UNION, first, second);
+    }
+
+    public static <T> ArraySet<T> intersection(ArraySet<T> first, ArraySet<T> second) {
+        return merge(MergeTask.Operation.INTERSECTION, first, second);
+    }
+
+    public static <T> ArraySet<T> difference(ArraySet<T> first, ArraySet<T> second) {
+        return merge(MergeTask.Operation.DIFFERENCE, first, second);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArraySet<T> merge(MergeTask.Operation operation, ArraySet<T> first, ArraySet<T> second) {
+        if (!Objects.equals(first.comparator, second.comparator)) {
+            List<T> result = new ArrayList<>();
+            for (T element : first) {
+                if (operation == MergeTask.Operation.UNION || (operation == MergeTask.Operation.INTERSECTION) == second.contains(element)) {
+                    result.add(element);
+                }
+            }
+            if (operation == MergeTask.Operation.UNION) {
+                result.addAll(second);
+            }
+            return new ArraySet<>(result, first.comparator);
+        }
+        Comparator<? super T> order = first.comparator != null ? first.comparator : (Comparator<? super T>) Comparator.naturalOrder();
+        return new ArraySet<>(first.comparator, new MergeTask<>(operation, order, first.data, second.data).invoke());
     }
 
-    private boolean checkIndex(int ind) {
-        return ind >= 0 && ind < data.size();
+    private static class ReversedList<E> extends AbstractList<E> implements RandomAccess {
+        private final List<E> data;
+
+        private ReversedList(List<E> data) {
+            this.data = data;
+        }
+
+        @Override
+        public E get(int index) {
+            return data.get(data.size() - 1 - index);
+        }
+
+        @Override
+        public int size() {
+            return data.size();
+        }
     }
 
-    private int findElement(T t) {
+    private static class IndexSpliterator<E> implements Spliterator<E> {
+        private final List<E> data;
+        private final Comparator<? super E> comparator;
+        private final int characteristics;
+        private int index;
+        private final int end;
+
+        private IndexSpliterator(List<E> data, Comparator<? super E> comparator, int characteristics, int index, int end) {
+            this.data = data;
+            this.comparator = comparator;
+            this.characteristics = characteristics;
+            this.index = index;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            if (index >= end) {
+                return false;
+            }
+            action.accept(data.get(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            for (int i = index; i < end; i++) {
+                action.accept(data.get(i));
+            }
+            index = end;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int middle = (index + end) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            Spliterator<E> prefix = new IndexSpliterator<>(data, comparator, characteristics, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return comparator;
+        }
+    }
+
+    private int findIndex(T t, int foundShift, int notFoundShift) {
         int ind = Collections.binarySearch(data, Objects.requireNonNull(t), comparator);
-        if (ind < 0) {
-            ind = -ind - 1;
+        return ind >= 0 ? ind + foundShift : -ind - 1 + notFoundShift;
+    }
+
+    private int lowerIndex(T t) {
+        return findIndex(t, -1, -1);
+    }
+
+    private int floorIndex(T t) {
+        return findIndex(t, 0, -1);
+    }
+
+    private int ceilingIndex(T t) {
+        return findIndex(t, 0, 0);
+    }
+
+    private int higherIndex(T t) {
+        return findIndex(t, 1, 0);
+    }
+
+    private T getOrNull(int index) {
+        return index >= 0 && index < data.size() ? data.get(index) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(T a, T b) {
+        return comparator == null ? ((Comparable<? super T>) a).compareTo(b) : comparator.compare(a, b);
+    }
+
+    private int fillEytzinger(int node, int index) {
+        if (node < eytzinger.length) {
+            index = fillEytzinger(2 * node, index);
+            eytzinger[node] = data.get(index++);
+            index = fillEytzinger(2 * node + 1, index);
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean eytzingerContains(T t) {
+        for (int node = 1; node < eytzinger.length; ) {
+            int cmp = compare((T) eytzinger[node], t);
+            if (cmp == 0) {
+                return true;
+            }
+            node = 2 * node + (cmp < 0 ? 1 : 0);
         }
-        return ind;
+        return false;
+    }
+
+    private boolean isSorted(T[] elements) {
+        for (int i = 1; i < elements.length; i++) {
+            if (compare(elements[i - 1], elements[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> sortedDistinct(Collection<? extends T> collection) {
+        T[] elements = (T[]) collection.toArray();
+        if (!isSorted(elements)) {
+            if (elements.length >= PARALLEL_SORT_THRESHOLD) {
+                Arrays.parallelSort(elements, comparator);
+            } else {
+                Arrays.sort(elements, comparator);
+            }
+        }
+        int size = 0;
+        for (T element : elements) {
+            if (comparator == null) {
+                Objects.requireNonNull(element);
+            }
+            if (size == 0 || compare(elements[size - 1], element) != 0) {
+                elements[size++] = element;
+            }
+        }
+        return Arrays.asList(size == elements.length ? elements : Arrays.copyOf(elements, size));
     }
 
     @Override
     public Iterator<T> iterator() {
-        return Collections.unmodifiableList(data).iterator();
+        return new Iterator<>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < data.size();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return data.get(index++);
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        int characteristics = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT
+                | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE;
+        if (comparator == null) {
+            characteristics |= Spliterator.NONNULL;
+        }
+        return new IndexSpliterator<>(data, comparator, characteristics, 0, data.size());
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        Objects.requireNonNull(action);
+        for (int i = 0; i < data.size(); i++) {
+            action.accept(data.get(i));
+        }
     }
 
     @Override
@@ -53,37 +283,88 @@ public class ArraySet<T> extends AbstractSet<T> implements SortedSet<T> {
         return comparator;
     }
 
-    private SortedSet<T> subSet(T fromElement, T toElement, boolean lastInclusive) {
-        int indFrom = findElement(fromElement);
-        int indTo = findElement(toElement) + (lastInclusive ? 1 : 0);
-        if (indFrom > indTo || !checkIndex(indTo - 1) || !checkIndex(indFrom)) {
-            return new ArraySet<>(comparator);
+    @Override
+    public T lower(T t) {
+        return getOrNull(lowerIndex(t));
+    }
+
+    @Override
+    public T floor(T t) {
+        return getOrNull(floorIndex(t));
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return getOrNull(ceilingIndex(t));
+    }
+
+    @Override
+    public T higher(T t) {
+        return getOrNull(higherIndex(t));
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        if (data instanceof ReversedList) {
+            Comparator<? super T> original = comparator == Collections.reverseOrder() ? null : Collections.reverseOrder(comparator);
+            return new ArraySet<>(original, ((ReversedList<T>) data).data);
         }
-        return new ArraySet<>(data.subList(indFrom, indTo), comparator);
+        return new ArraySet<>(Collections.reverseOrder(comparator), new ReversedList<>(data));
     }
 
     @Override
-    public SortedSet<T> tailSet(T fromElement) {
-        if (data.isEmpty()) {
-            return new ArraySet<>(comparator);
+    public Iterator<T> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private NavigableSet<T> subSet(int indFrom, int indTo) {
+        return new ArraySet<>(comparator, data.subList(indFrom, Math.max(indFrom, indTo)));
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement is greater than toElement");
         }
-        return subSet(fromElement, last(), true);
+        return subSet(fromInclusive ? ceilingIndex(fromElement) : higherIndex(fromElement),
+                (toInclusive ? floorIndex(toElement) : lowerIndex(toElement)) + 1);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return subSet(0, (inclusive ? floorIndex(toElement) : lowerIndex(toElement)) + 1);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return subSet(inclusive ? ceilingIndex(fromElement) : higherIndex(fromElement), data.size());
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
     }
 
     @Override
     public SortedSet<T> subSet(T fromElement, T toElement) {
-        return subSet(fromElement, toElement, false);
+        return subSet(fromElement, true, toElement, false);
     }
 
     @Override
     public SortedSet<T> headSet(T toElement) {
-        if (data.isEmpty()) {
-            return new ArraySet<>(comparator);
-        }
-        return subSet(first(), toElement);
+        return headSet(toElement, false);
     }
 
-
     @Override
     public T first() {
         if (data.isEmpty()) {
@@ -104,6 +385,9 @@ public class ArraySet<T> extends AbstractSet<T> implements SortedSet<T> {
     @SuppressWarnings("unchecked")
     @Override
     public boolean contains(Object o) {
+        if (eytzinger != null) {
+            return eytzingerContains((T) Objects.requireNonNull(o));
+        }
         return Collections.binarySearch(data, (T) Objects.requireNonNull(o), comparator) >= 0;
     }
 }
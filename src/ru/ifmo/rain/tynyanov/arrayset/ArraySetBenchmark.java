@@ -0,0 +1,154 @@
+package ru.ifmo.rain.tynyanov.arrayset;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+public class ArraySetBenchmark {
+    private static final int[] SIZES = {1_000, 100_000, 1_000_000};
+    private static final int QUERIES = 1_000_000;
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int ITERATIONS = 5;
+
+    private static volatile long sink;
+
+    private final Random random = new Random(4875043285743285204L);
+
+    private static class Structure {
+        private final String name;
+        private final boolean naturalOnly;
+        private final Function<List<Integer>, SortedSet<Integer>> factory;
+
+        private Structure(String name, boolean naturalOnly, Function<List<Integer>, SortedSet<Integer>> factory) {
+            this.name = name;
+            this.naturalOnly = naturalOnly;
+            this.factory = factory;
+        }
+    }
+
+    private static List<Structure> structures(Comparator<Integer> comparator) {
+        return List.of(
+                new Structure("ArraySet", false, values -> new ArraySet<>(values, comparator)),
+                new Structure("TreeSet", false, values -> {
+                    TreeSet<Integer> set = new TreeSet<>(comparator);
+                    set.addAll(values);
+                    return set;
+                }),
+                new Structure("ConcurrentSkipListSet", false, values -> {
+                    ConcurrentSkipListSet<Integer> set = new ConcurrentSkipListSet<>(comparator);
+                    set.addAll(values);
+                    return set;
+                }),
+                new Structure("IntArraySet", true, IntArraySet::new)
+        );
+    }
+
+    private interface Operation {
+        long run();
+    }
+
+    private static double measure(Operation operation, long operations) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += operation.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            sink += operation.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / (double) operations;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double footprint(Structure structure, List<Integer> values) {
+        long before = usedMemory();
+        SortedSet<Integer> set = structure.factory.apply(values);
+        long after = usedMemory();
+        sink += set.size();
+        return (after - before) / (double) set.size();
+    }
+
+    private List<Integer> randomValues(int size) {
+        List<Integer> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(random.nextInt(4 * size));
+        }
+        return values;
+    }
+
+    private static void print(String structure, String comparator, int size, String operation, double value) {
+        System.out.println(String.format("%s,%s,%d,%s,%.2f", structure, comparator, size, operation, value));
+    }
+
+    private void run(String comparatorName, Comparator<Integer> comparator) {
+        for (int size : SIZES) {
+            List<Integer> values = randomValues(size);
+            Integer[] queries = new Integer[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                queries[i] = random.nextInt(4 * size);
+            }
+            for (Structure structure : structures(comparator)) {
+                if (structure.naturalOnly && comparator != null) {
+                    continue;
+                }
+                SortedSet<Integer> set = structure.factory.apply(values);
+                print(structure.name, comparatorName, size, "construct(ns/element)",
+                        measure(() -> structure.factory.apply(values).size(), size));
+                print(structure.name, comparatorName, size, "contains(ns/op)", measure(() -> {
+                    long found = 0;
+                    for (Integer query : queries) {
+                        if (set.contains(query)) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }, QUERIES));
+                print(structure.name, comparatorName, size, "iterate(ns/element)", measure(() -> {
+                    long sum = 0;
+                    for (Integer element : set) {
+                        sum += element;
+                    }
+                    return sum;
+                }, set.size()));
+                int ranges = QUERIES / 10;
+                print(structure.name, comparatorName, size, "range(ns/op)", measure(() -> {
+                    long total = 0;
+                    for (int i = 0; i + 1 < ranges; i += 2) {
+                        Integer from = queries[i];
+                        Integer to = queries[i + 1];
+                        if (set.comparator() == null ? from > to : set.comparator().compare(from, to) > 0) {
+                            Integer tmp = from;
+                            from = to;
+                            to = tmp;
+                        }
+                        total += set.subSet(from, to).isEmpty() ? 0 : 1;
+                        total += set.headSet(to).isEmpty() ? 0 : 1;
+                        total += set.tailSet(from).isEmpty() ? 0 : 1;
+                    }
+                    return total;
+                }, ranges / 2 * 3));
+                print(structure.name, comparatorName, size, "memory(bytes/element)", footprint(structure, values));
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        ArraySetBenchmark benchmark = new ArraySetBenchmark();
+        System.out.println("structure,comparator,size,operation,value");
+        benchmark.run("natural", null);
+        benchmark.run("reverse", Comparator.reverseOrder());
+    }
+}
@@ -0,0 +1,143 @@
+package ru.ifmo.rain.tynyanov.arrayset;
+
+import java.util.*;
+
+public class IntArraySet extends AbstractSet<Integer> implements SortedSet<Integer> {
+    private final int[] data;
+    private final int fromIndex;
+    private final int toIndex;
+
+    public IntArraySet() {
+        this(new int[0], 0, 0);
+    }
+
+    public IntArraySet(int[] values) {
+        int[] sorted = Objects.requireNonNull(values).clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int value : sorted) {
+            if (size == 0 || sorted[size - 1] != value) {
+                sorted[size++] = value;
+            }
+        }
+        data = size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+        fromIndex = 0;
+        toIndex = size;
+    }
+
+    public IntArraySet(Collection<Integer> collection) {
+        this(collection.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private IntArraySet(int[] data, int fromIndex, int toIndex) {
+        this.data = data;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+    }
+
+    private int findElement(int element) {
+        int ind = Arrays.binarySearch(data, fromIndex, toIndex, element);
+        if (ind < 0) {
+            ind = -ind - 1;
+        }
+        return ind;
+    }
+
+    public boolean contains(int element) {
+        return Arrays.binarySearch(data, fromIndex, toIndex, element) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return Objects.requireNonNull(o) instanceof Integer && contains((int) (Integer) o);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return index < toIndex;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return data[index++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return toIndex - fromIndex;
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return null;
+    }
+
+    public IntArraySet subSet(int fromElement, int toElement) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement is greater than toElement");
+        }
+        int indFrom = findElement(fromElement);
+        return new IntArraySet(data, indFrom, Math.max(indFrom, findElement(toElement)));
+    }
+
+    public IntArraySet headSet(int toElement) {
+        return new IntArraySet(data, fromIndex, findElement(toElement));
+    }
+
+    public IntArraySet tailSet(int fromElement) {
+        return new IntArraySet(data, findElement(fromElement), toIndex);
+    }
+
+    @Override
+    public IntArraySet subSet(Integer fromElement, Integer toElement) {
+        return subSet((int) fromElement, (int) toElement);
+    }
+
+    @Override
+    public IntArraySet headSet(Integer toElement) {
+        return headSet((int) toElement);
+    }
+
+    @Override
+    public IntArraySet tailSet(Integer fromElement) {
+        return tailSet((int) fromElement);
+    }
+
+    public int firstInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return data[fromIndex];
+    }
+
+    public int lastInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return data[toIndex - 1];
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    public int[] toIntArray() {
+        return Arrays.copyOfRange(data, fromIndex, toIndex);
+    }
+}
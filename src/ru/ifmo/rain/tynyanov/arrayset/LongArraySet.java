@@ -0,0 +1,143 @@
+package ru.ifmo.rain.tynyanov.arrayset;
+
+import java.util.*;
+
+public class LongArraySet extends AbstractSet<Long> implements SortedSet<Long> {
+    private final long[] data;
+    private final int fromIndex;
+    private final int toIndex;
+
+    public LongArraySet() {
+        this(new long[0], 0, 0);
+    }
+
+    public LongArraySet(long[] values) {
+        long[] sorted = Objects.requireNonNull(values).clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (long value : sorted) {
+            if (size == 0 || sorted[size - 1] != value) {
+                sorted[size++] = value;
+            }
+        }
+        data = size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+        fromIndex = 0;
+        toIndex = size;
+    }
+
+    public LongArraySet(Collection<Long> collection) {
+        this(collection.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private LongArraySet(long[] data, int fromIndex, int toIndex) {
+        this.data = data;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+    }
+
+    private int findElement(long element) {
+        int ind = Arrays.binarySearch(data, fromIndex, toIndex, element);
+        if (ind < 0) {
+            ind = -ind - 1;
+        }
+        return ind;
+    }
+
+    public boolean contains(long element) {
+        return Arrays.binarySearch(data, fromIndex, toIndex, element) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return Objects.requireNonNull(o) instanceof Long && contains((long) (Long) o);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int index = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return index < toIndex;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return data[index++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return toIndex - fromIndex;
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return null;
+    }
+
+    public LongArraySet subSet(long fromElement, long toElement) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement is greater than toElement");
+        }
+        int indFrom = findElement(fromElement);
+        return new LongArraySet(data, indFrom, Math.max(indFrom, findElement(toElement)));
+    }
+
+    public LongArraySet headSet(long toElement) {
+        return new LongArraySet(data, fromIndex, findElement(toElement));
+    }
+
+    public LongArraySet tailSet(long fromElement) {
+        return new LongArraySet(data, findElement(fromElement), toIndex);
+    }
+
+    @Override
+    public LongArraySet subSet(Long fromElement, Long toElement) {
+        return subSet((long) fromElement, (long) toElement);
+    }
+
+    @Override
+    public LongArraySet headSet(Long toElement) {
+        return headSet((long) toElement);
+    }
+
+    @Override
+    public LongArraySet tailSet(Long fromElement) {
+        return tailSet((long) fromElement);
+    }
+
+    public long firstLong() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return data[fromIndex];
+    }
+
+    public long lastLong() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return data[toIndex - 1];
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    public long[] toLongArray() {
+        return Arrays.copyOfRange(data, fromIndex, toIndex);
+    }
+}
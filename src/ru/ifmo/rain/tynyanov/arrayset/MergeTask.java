@@ -0,0 +1,154 @@
+package ru.ifmo.rain.tynyanov.arrayset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+class MergeTask<T> extends RecursiveTask<List<T>> {
+    private static final long serialVersionUID = 1L;
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int GALLOP_RATIO = 16;
+
+    enum Operation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
+    private final Operation operation;
+    private final Comparator<? super T> comparator;
+    private final List<T> first;
+    private final List<T> second;
+
+    MergeTask(Operation operation, Comparator<? super T> comparator, List<T> first, List<T> second) {
+        this.operation = operation;
+        this.comparator = comparator;
+        this.first = first;
+        this.second = second;
+    }
+
+    private int lowerBound(List<T> list, T element) {
+        int ind = Collections.binarySearch(list, element, comparator);
+        return ind >= 0 ? ind : -ind - 1;
+    }
+
+    private int gallop(List<T> list, int from, T element) {
+        int lo = from;
+        int hi = from;
+        for (int step = 1; hi < list.size() && comparator.compare(list.get(hi), element) < 0; step <<= 1) {
+            lo = hi + 1;
+            hi += step;
+        }
+        return lo + lowerBound(list.subList(lo, Math.min(hi, list.size())), element);
+    }
+
+    private void linearMerge(List<T> result) {
+        int i = 0;
+        int j = 0;
+        while (i < first.size() && j < second.size()) {
+            int cmp = comparator.compare(first.get(i), second.get(j));
+            if (cmp < 0) {
+                if (operation != Operation.INTERSECTION) {
+                    result.add(first.get(i));
+                }
+                i++;
+            } else if (cmp > 0) {
+                if (operation == Operation.UNION) {
+                    result.add(second.get(j));
+                }
+                j++;
+            } else {
+                if (operation != Operation.DIFFERENCE) {
+                    result.add(first.get(i));
+                }
+                i++;
+                j++;
+            }
+        }
+        if (operation != Operation.INTERSECTION) {
+            result.addAll(first.subList(i, first.size()));
+        }
+        if (operation == Operation.UNION) {
+            result.addAll(second.subList(j, second.size()));
+        }
+    }
+
+    private void gallopFirst(List<T> result) {
+        int j = 0;
+        for (T element : first) {
+            int position = gallop(second, j, element);
+            if (operation == Operation.UNION) {
+                result.addAll(second.subList(j, position));
+            }
+            boolean found = position < second.size() && comparator.compare(second.get(position), element) == 0;
+            if (operation == Operation.UNION || (operation == Operation.INTERSECTION) == found) {
+                result.add(element);
+            }
+            j = found ? position + 1 : position;
+        }
+        if (operation == Operation.UNION) {
+            result.addAll(second.subList(j, second.size()));
+        }
+    }
+
+    private void gallopSecond(List<T> result) {
+        int i = 0;
+        for (T element : second) {
+            int position = gallop(first, i, element);
+            if (operation != Operation.INTERSECTION) {
+                result.addAll(first.subList(i, position));
+            }
+            if (position < first.size() && comparator.compare(first.get(position), element) == 0) {
+                if (operation != Operation.DIFFERENCE) {
+                    result.add(first.get(position));
+                }
+                i = position + 1;
+            } else {
+                if (operation == Operation.UNION) {
+                    result.add(element);
+                }
+                i = position;
+            }
+        }
+        if (operation != Operation.INTERSECTION) {
+            result.addAll(first.subList(i, first.size()));
+        }
+    }
+
+    private List<T> merge() {
+        List<T> result = new ArrayList<>();
+        if ((long) first.size() * GALLOP_RATIO < second.size()) {
+            gallopFirst(result);
+        } else if ((long) second.size() * GALLOP_RATIO < first.size()) {
+            gallopSecond(result);
+        } else {
+            linearMerge(result);
+        }
+        return result;
+    }
+
+    @Override
+    protected List<T> compute() {
+        if (first.size() + second.size() < PARALLEL_THRESHOLD || first.isEmpty() || second.isEmpty()) {
+            return merge();
+        }
+        int firstSplit;
+        int secondSplit;
+        if (first.size() >= second.size()) {
+            firstSplit = first.size() / 2;
+            secondSplit = lowerBound(second, first.get(firstSplit));
+        } else {
+            secondSplit = second.size() / 2;
+            firstSplit = lowerBound(first, second.get(secondSplit));
+        }
+        MergeTask<T> left = new MergeTask<>(operation, comparator,
+                first.subList(0, firstSplit), second.subList(0, secondSplit));
+        MergeTask<T> right = new MergeTask<>(operation, comparator,
+                first.subList(firstSplit, first.size()), second.subList(secondSplit, second.size()));
+        left.fork();
+        List<T> rightResult = right.compute();
+        List<T> result = left.join();
+        result.addAll(rightResult);
+        return result;
+    }
+}
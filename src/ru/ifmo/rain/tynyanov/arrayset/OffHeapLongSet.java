@@ -0,0 +1,318 @@
+package ru.ifmo.rain.tynyanov.arrayset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.LongStream;
+
+public class OffHeapLongSet extends AbstractSet<Long> implements SortedSet<Long> {
+    private static final long MAGIC = 0x4c4f4e4753455431L;
+    private static final int HEADER_SIZE = 2 * Long.BYTES;
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_LENGTH = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_LENGTH - 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final int INITIAL_SEGMENT_LENGTH = 1 << 12;
+
+    private final LongBuffer[] segments;
+    private final long fromIndex;
+    private final long toIndex;
+
+    private OffHeapLongSet(LongBuffer[] segments, long fromIndex, long toIndex) {
+        this.segments = segments;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+    }
+
+    private static int segmentCount(long length) {
+        return (int) ((length + SEGMENT_LENGTH - 1) >>> SEGMENT_SHIFT);
+    }
+
+    private static long segmentLength(long length, int segment) {
+        return Math.min(SEGMENT_LENGTH, length - segment * SEGMENT_LENGTH);
+    }
+
+    public static OffHeapLongSet copyOf(LongArraySet set) {
+        return copyOf(set.iterator());
+    }
+
+    public static OffHeapLongSet copyOf(LongStream sortedValues) {
+        return copyOf(sortedValues.iterator());
+    }
+
+    public static OffHeapLongSet copyOf(PrimitiveIterator.OfLong sortedValues) {
+        List<LongBuffer> segments = new ArrayList<>();
+        LongBuffer segment = null;
+        long length = 0;
+        for (SortedValues values = new SortedValues(sortedValues); values.hasNext(); length++) {
+            if (segment == null || !segment.hasRemaining()) {
+                if (segment != null && segment.capacity() == SEGMENT_LENGTH) {
+                    segments.add(segment);
+                    segment = null;
+                }
+                segment = grow(segment);
+            }
+            segment.put(values.nextLong());
+        }
+        if (segment != null) {
+            segments.add(segment.hasRemaining() ? resize(segment, segment.position()) : segment);
+        }
+        return new OffHeapLongSet(segments.toArray(new LongBuffer[0]), 0, length);
+    }
+
+    private static LongBuffer grow(LongBuffer segment) {
+        return segment == null ? resize(null, INITIAL_SEGMENT_LENGTH) : resize(segment, segment.capacity() * 2);
+    }
+
+    private static LongBuffer resize(LongBuffer segment, int capacity) {
+        LongBuffer resized = ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        if (segment != null) {
+            segment.flip();
+            resized.put(segment);
+        }
+        return resized;
+    }
+
+    private static class SortedValues implements PrimitiveIterator.OfLong {
+        private final PrimitiveIterator.OfLong values;
+        private boolean hasPrevious;
+        private long previous;
+        private boolean hasNext;
+        private long next;
+
+        private SortedValues(PrimitiveIterator.OfLong values) {
+            this.values = Objects.requireNonNull(values);
+            advance();
+        }
+
+        private void advance() {
+            hasNext = false;
+            while (values.hasNext()) {
+                long value = values.nextLong();
+                if (hasPrevious && value < previous) {
+                    throw new IllegalArgumentException("Values must be sorted: " + value + " after " + previous);
+                }
+                if (!hasPrevious || value != previous) {
+                    hasNext = true;
+                    next = value;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            hasPrevious = true;
+            previous = next;
+            advance();
+            return previous;
+        }
+    }
+
+    public static OffHeapLongSet map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a sorted key file: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong() != MAGIC) {
+                throw new IOException("Not a sorted key file: " + file);
+            }
+            long length = header.getLong();
+            if (length < 0 || channel.size() != HEADER_SIZE + length * Long.BYTES) {
+                throw new IOException("Corrupted sorted key file: " + file);
+            }
+            LongBuffer[] segments = new LongBuffer[segmentCount(length)];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + i * SEGMENT_LENGTH * Long.BYTES, segmentLength(length, i) * Long.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+            return new OffHeapLongSet(segments, 0, length);
+        }
+    }
+
+    public static void write(Path file, SortedSet<Long> set) throws IOException {
+        if (set.comparator() != null) {
+            throw new IllegalArgumentException("Only naturally ordered sets can be written");
+        }
+        Iterator<Long> iterator = set.iterator();
+        write(file, iterator instanceof PrimitiveIterator.OfLong
+                ? (PrimitiveIterator.OfLong) iterator
+                : new PrimitiveIterator.OfLong() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public long nextLong() {
+                        return iterator.next();
+                    }
+                });
+    }
+
+    public static void write(Path file, LongStream sortedValues) throws IOException {
+        write(file, sortedValues.iterator());
+    }
+
+    public static void write(Path file, PrimitiveIterator.OfLong sortedValues) throws IOException {
+        SortedValues values = new SortedValues(sortedValues);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putLong(MAGIC);
+            buffer.putLong(0);
+            long length = 0;
+            while (values.hasNext()) {
+                if (!buffer.hasRemaining()) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putLong(values.nextLong());
+                length++;
+            }
+            writeFully(channel, buffer);
+            buffer.putLong(length).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, Long.BYTES + buffer.position());
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private long get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    private long findElement(long element) {
+        long lo = fromIndex;
+        long hi = toIndex;
+        while (lo < hi) {
+            long middle = (lo + hi) >>> 1;
+            if (get(middle) < element) {
+                lo = middle + 1;
+            } else {
+                hi = middle;
+            }
+        }
+        return lo;
+    }
+
+    public boolean contains(long element) {
+        long ind = findElement(element);
+        return ind < toIndex && get(ind) == element;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return Objects.requireNonNull(o) instanceof Long && contains((long) (Long) o);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private long index = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return index < toIndex;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    public long longSize() {
+        return toIndex - fromIndex;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, longSize());
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return null;
+    }
+
+    public OffHeapLongSet subSet(long fromElement, long toElement) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement is greater than toElement");
+        }
+        return new OffHeapLongSet(segments, findElement(fromElement), findElement(toElement));
+    }
+
+    public OffHeapLongSet headSet(long toElement) {
+        return new OffHeapLongSet(segments, fromIndex, findElement(toElement));
+    }
+
+    public OffHeapLongSet tailSet(long fromElement) {
+        return new OffHeapLongSet(segments, findElement(fromElement), toIndex);
+    }
+
+    @Override
+    public OffHeapLongSet subSet(Long fromElement, Long toElement) {
+        return subSet((long) fromElement, (long) toElement);
+    }
+
+    @Override
+    public OffHeapLongSet headSet(Long toElement) {
+        return headSet((long) toElement);
+    }
+
+    @Override
+    public OffHeapLongSet tailSet(Long fromElement) {
+        return tailSet((long) fromElement);
+    }
+
+    public long firstLong() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(fromIndex);
+    }
+
+    public long lastLong() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(toIndex - 1);
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+}
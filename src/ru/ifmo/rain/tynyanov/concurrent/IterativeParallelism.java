@@ -4,9 +4,12 @@ import info.kgeorgiy.java.advanced.concurrent.ListIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class IterativeParallelism implements ListIP {
@@ -16,10 +19,33 @@ public class IterativeParallelism implements ListIP {
         this.mapper = mapper;
     }
 
+    private static int[] blockBounds(int threadsNum, int size) {
+        threadsNum = Math.min(Math.max(size, 1), threadsNum);
+        int threadBlockSize = size / threadsNum;
+        int elementsLeft = size % threadsNum;
+        int[] bounds = new int[threadsNum + 1];
+        for (int i = 0; i < threadsNum; ++i) {
+            bounds[i + 1] = bounds[i] + threadBlockSize;
+            if (elementsLeft > 0) {
+                ++bounds[i + 1];
+                --elementsLeft;
+            }
+        }
+        return bounds;
+    }
+
     private <T, R> R parallelAction(int threadsNum, List<? extends T> list,
                                     final Function<? super Stream<? extends T>, ? extends R> threadFunc,
                                     final Function<? super Stream<? extends R>, ? extends R> collectorFunc)
             throws InterruptedException {
+        return parallelAction(threadsNum, list, threadFunc, collectorFunc, null);
+    }
+
+    private <T, R> R parallelAction(int threadsNum, List<? extends T> list,
+                                    final Function<? super Stream<? extends T>, ? extends R> threadFunc,
+                                    final Function<? super Stream<? extends R>, ? extends R> collectorFunc,
+                                    final Predicate<? super R> stopCondition)
+            throws InterruptedException {
         if (threadsNum < 1) {
             throw new IllegalArgumentException("Number of threads must be positive");
         }
@@ -29,21 +55,17 @@ public class IterativeParallelism implements ListIP {
         if (list.isEmpty()) {
             throw new NoSuchElementException("Can't work with empty list");
         }
-        threadsNum = Math.min(Math.max(list.size(), 1), threadsNum);
-        int threadBlockSize = list.size() / threadsNum;
-        int elementsLeft = list.size() % threadsNum;
+        int[] bounds = blockBounds(threadsNum, list.size());
+        threadsNum = bounds.length - 1;
         List<Stream<? extends T>> threadsBlocks = new ArrayList<>();
-        for (int l, r = 0, i = 0; i < threadsNum; ++i) {
-            l = r;
-            r = l + threadBlockSize;
-            if (elementsLeft > 0) {
-                ++r;
-                --elementsLeft;
-            }
-            threadsBlocks.add(list.subList(l, r).stream());
+        for (int i = 0; i < threadsNum; ++i) {
+            threadsBlocks.add(list.subList(bounds[i], bounds[i + 1]).stream());
         }
         List<R> threadsResults;
-        if (mapper != null) {
+        if (mapper instanceof ParallelMapperImpl && stopCondition != null) {
+            threadsResults = ((ParallelMapperImpl) mapper).mapUntil(threadFunc, threadsBlocks, stopCondition).stream()
+                    .filter(Objects::nonNull).collect(Collectors.toList());
+        } else if (mapper != null) {
             threadsResults = mapper.map(threadFunc, threadsBlocks);
         } else {
             threadsResults = new ArrayList<>(Collections.nCopies(threadsNum, null));
@@ -93,9 +115,72 @@ public class IterativeParallelism implements ListIP {
         if (predicate == null) {
             throw new IllegalArgumentException("Predicate can't be null");
         }
+        AtomicBoolean found = new AtomicBoolean();
         return parallelAction(threads, values,
-                stream -> stream.anyMatch(predicate),
-                stream -> stream.anyMatch(elem -> elem));
+                stream -> {
+                    boolean result = stream.takeWhile(elem -> !found.get()).anyMatch(predicate);
+                    if (result) {
+                        found.set(true);
+                    }
+                    return result;
+                },
+                stream -> stream.anyMatch(elem -> elem),
+                Boolean.TRUE::equals);
+    }
+
+    public <T> Optional<T> findAny(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        if (predicate == null) {
+            throw new IllegalArgumentException("Predicate can't be null");
+        }
+        if (values != null && values.isEmpty()) {
+            return Optional.empty();
+        }
+        AtomicBoolean found = new AtomicBoolean();
+        return Optional.ofNullable(parallelAction(threads, values,
+                stream -> {
+                    T result = stream.takeWhile(elem -> !found.get()).filter(predicate).findAny().orElse(null);
+                    if (result != null) {
+                        found.set(true);
+                    }
+                    return result;
+                },
+                stream -> stream.filter(Objects::nonNull).findAny().orElse(null),
+                Objects::nonNull));
+    }
+
+    public <T> Optional<T> findFirst(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        if (predicate == null) {
+            throw new IllegalArgumentException("Predicate can't be null");
+        }
+        if (values == null) {
+            throw new IllegalArgumentException("Arguments can't be null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        if (values.isEmpty()) {
+            return Optional.empty();
+        }
+        int[] bounds = blockBounds(threads, values.size());
+        List<Integer> blocks = IntStream.range(0, bounds.length - 1).boxed().collect(Collectors.toList());
+        AtomicInteger firstFound = new AtomicInteger(Integer.MAX_VALUE);
+        int first = parallelAction(threads, blocks,
+                stream -> stream.mapToInt(block -> {
+                    int index = bounds[block];
+                    for (T value : values.subList(bounds[block], bounds[block + 1])) {
+                        if (index >= firstFound.get()) {
+                            break;
+                        }
+                        if (predicate.test(value)) {
+                            firstFound.accumulateAndGet(index, Math::min);
+                            return index;
+                        }
+                        index++;
+                    }
+                    return Integer.MAX_VALUE;
+                }).min().orElse(Integer.MAX_VALUE),
+                stream -> stream.mapToInt(Integer::intValue).min().orElse(Integer.MAX_VALUE));
+        return first == Integer.MAX_VALUE ? Optional.empty() : Optional.of(values.get(first));
     }
 
     public String join(int threads, List<?> values) throws InterruptedException {
@@ -0,0 +1,65 @@
+package ru.ifmo.rain.tynyanov.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+public class ParallelMapperBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int[] WORK = {0, 100, 10_000};
+    private static final long TOTAL_WORK = 200_000_000L;
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int ITERATIONS = 5;
+
+    private static volatile long sink;
+
+    private static long work(int value, int iterations) {
+        long result = value;
+        for (int i = 0; i < iterations; i++) {
+            result = result * 6364136223846793005L + 1442695040888963407L;
+        }
+        return result;
+    }
+
+    private static long runOnce(ParallelMapperImpl mapper, List<Integer> args, int iterations) throws InterruptedException {
+        Function<Integer, Long> f = value -> work(value, iterations);
+        long start = System.nanoTime();
+        List<Long> results = mapper.map(f, args);
+        long time = System.nanoTime() - start;
+        sink += results.get(results.size() - 1);
+        return time;
+    }
+
+    private static void measure(int threads, int iterations) throws InterruptedException {
+        int elements = (int) Math.min(2_000_000, TOTAL_WORK / Math.max(iterations, 1));
+        List<Integer> args = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++) {
+            args.add(i);
+        }
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(threads)) {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                runOnce(mapper, args, iterations);
+            }
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < ITERATIONS; i++) {
+                best = Math.min(best, runOnce(mapper, args, iterations));
+            }
+            double seconds = best / 1e9;
+            System.out.println(String.format("%d,%d,%d,%.1f,%.0f", threads, iterations, elements,
+                    best / 1e6, elements / seconds));
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("threads,work,elements,time(ms),elements/s");
+        try {
+            for (int iterations : WORK) {
+                for (int threads : THREADS) {
+                    measure(threads, iterations);
+                }
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Benchmark was interrupted");
+        }
+    }
+}
@@ -3,23 +3,58 @@ package ru.ifmo.rain.tynyanov.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class ParallelMapperImpl implements ParallelMapper {
-    private Thread[] threads;
-    private final int MAX_SIZE = 1_000_000;
-    private final Queue<Runnable> taskQueue = new ArrayDeque<>();
+    private static final int SPIN_ATTEMPTS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+    private static final int SAMPLE_CHUNK_SIZE = 8;
+    private static final long TARGET_CHUNK_NANOS = 50_000;
+    private static final long TASK_THREAD_STACK_SIZE = 256 * 1024;
+
+    private final Thread[] threads;
+    private final int[] cursors;
+    private volatile TaskGroup<?, ?>[] groups = new TaskGroup<?, ?>[0];
+    private final ReentrantLock sleepLock = new ReentrantLock();
+    private final Condition taskAdded = sleepLock.newCondition();
+    private volatile int sleepingThreads;
+    private final ThreadFactory taskThreads;
+    private final Semaphore taskPermits;
+    private final Set<Thread> runningTasks = ConcurrentHashMap.newKeySet();
+    private final Set<ResultList<?>> activeCalls = ConcurrentHashMap.newKeySet();
+    private final Set<ResultSubscription<?>> activeSubscriptions = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
 
     public ParallelMapperImpl(int threadsNumber) {
         if (threadsNumber < 1) {
             throw new IllegalArgumentException("Number of threads must be positive");
         }
         threads = new Thread[threadsNumber];
+        cursors = new int[threadsNumber];
+        taskThreads = null;
+        taskPermits = null;
         for (int i = 0; i < threadsNumber; i++) {
+            final int worker = i;
             threads[i] = new Thread(() -> {
                 try {
-                    while (!Thread.interrupted()) {
-                        threadSolve();
+                    while (!closed && !Thread.interrupted()) {
+                        threadSolve(worker);
                     }
                 } catch (InterruptedException e) {
                     //Do nothing
@@ -32,75 +67,557 @@ public class ParallelMapperImpl implements ParallelMapper {
         }
     }
 
-    private void addTask(Runnable task) throws InterruptedException {
-        synchronized (taskQueue) {
-            while (taskQueue.size() == MAX_SIZE) {
-                taskQueue.wait();
+    private ParallelMapperImpl(ThreadFactory taskThreads, int maxConcurrency) {
+        threads = new Thread[0];
+        cursors = new int[0];
+        this.taskThreads = taskThreads;
+        taskPermits = new Semaphore(maxConcurrency);
+    }
+
+    public static ParallelMapperImpl perTaskThreads(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency limit must be positive");
+        }
+        return new ParallelMapperImpl(taskThreadFactory(), maxConcurrency);
+    }
+
+    private static ThreadFactory taskThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return task -> {
+                Thread thread = new Thread(null, task, "", TASK_THREAD_STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    private class TaskGroup<T, R> {
+        private final Function<? super T, ? extends R> f;
+        private final List<? extends T> args;
+        private final ResultList<R> results;
+        private final int priority;
+        private final int weight;
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        private volatile double elementNanos;
+
+        private TaskGroup(Function<? super T, ? extends R> f, List<? extends T> args, ResultList<R> results,
+                          int priority, int weight) {
+            this.f = f;
+            this.args = args;
+            this.results = results;
+            this.priority = priority;
+            this.weight = weight;
+        }
+
+        private void cancel() {
+            nextIndex.set(args.size());
+            removeGroup(this);
+        }
+
+        private boolean hasChunks() {
+            return nextIndex.get() < args.size();
+        }
+
+        private int chunkSize(int remaining) {
+            int maxChunk = Math.max(1, remaining / threads.length);
+            double cost = elementNanos;
+            if (cost == 0) {
+                return Math.min(SAMPLE_CHUNK_SIZE, maxChunk);
+            }
+            return (int) Math.max(1, Math.min(maxChunk, TARGET_CHUNK_NANOS / cost));
+        }
+
+        private boolean solveNextChunk() {
+            int from;
+            int to;
+            do {
+                from = nextIndex.get();
+                if (from >= args.size()) {
+                    return false;
+                }
+                to = from + chunkSize(args.size() - from);
+            } while (!nextIndex.compareAndSet(from, to));
+            if (to == args.size()) {
+                removeGroup(this);
+            }
+            long start = System.nanoTime();
+            solveChunk(f, args, from, to, results);
+            elementNanos = Math.max(1, System.nanoTime() - start) / (double) (to - from);
+            return true;
+        }
+    }
+
+    private synchronized void addGroup(TaskGroup<?, ?> group) {
+        TaskGroup<?, ?>[] current = groups;
+        TaskGroup<?, ?>[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = group;
+        groups = updated;
+    }
+
+    private synchronized void removeGroup(TaskGroup<?, ?> group) {
+        TaskGroup<?, ?>[] current = groups;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == group) {
+                TaskGroup<?, ?>[] updated = new TaskGroup<?, ?>[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                groups = updated;
+                return;
             }
-            taskQueue.add(task);
-            taskQueue.notify();
         }
     }
 
-    private void threadSolve() throws InterruptedException {
-        Runnable curTask;
-        synchronized (taskQueue) {
-            while (taskQueue.isEmpty()) {
-                taskQueue.wait();
+    private void wakeUp() {
+        if (sleepingThreads > 0) {
+            sleepLock.lock();
+            try {
+                taskAdded.signalAll();
+            } finally {
+                sleepLock.unlock();
+            }
+        }
+    }
+
+    private TaskGroup<?, ?> findGroup(int worker) {
+        TaskGroup<?, ?>[] current = groups;
+        TaskGroup<?, ?> best = null;
+        int bestIndex = 0;
+        for (int i = 0; i < current.length; i++) {
+            int index = (cursors[worker] + i) % current.length;
+            TaskGroup<?, ?> group = current[index];
+            if (group.hasChunks() && (best == null || group.priority > best.priority)) {
+                best = group;
+                bestIndex = index;
+            }
+        }
+        cursors[worker] = bestIndex + 1;
+        return best;
+    }
+
+    private TaskGroup<?, ?> awaitGroup(int worker) throws InterruptedException {
+        for (int i = 0; i < SPIN_ATTEMPTS; i++) {
+            TaskGroup<?, ?> group = findGroup(worker);
+            if (group != null) {
+                return group;
+            }
+            Thread.onSpinWait();
+        }
+        sleepLock.lockInterruptibly();
+        try {
+            sleepingThreads++;
+            try {
+                TaskGroup<?, ?> group;
+                while ((group = findGroup(worker)) == null) {
+                    if (closed) {
+                        throw new InterruptedException("Mapper is closed");
+                    }
+                    taskAdded.await();
+                }
+                return group;
+            } finally {
+                sleepingThreads--;
             }
-            curTask = taskQueue.poll();
-            taskQueue.notify();
+        } finally {
+            sleepLock.unlock();
+        }
+    }
+
+    private void threadSolve(int worker) throws InterruptedException {
+        TaskGroup<?, ?> group = awaitGroup(worker);
+        int solved = 0;
+        while (solved < group.weight && group.solveNextChunk()) {
+            solved++;
         }
-        curTask.run();
     }
 
     class ResultList<R> {
-        private final List<R> list;
-        int numberOfElements;
+        private final Object[] results;
+        private final AtomicInteger remaining;
+        private final CompletableFuture<List<R>> done = new CompletableFuture<>();
+        private final Consumer<? super R> listener;
+        private final Predicate<? super R> stopCondition;
+        private volatile boolean cancelled;
+        private volatile Runnable canceller;
+
+        private ResultList(int size, Consumer<? super R> listener, Predicate<? super R> stopCondition) {
+            results = new Object[size];
+            remaining = new AtomicInteger(size);
+            this.listener = listener;
+            this.stopCondition = stopCondition;
+            if (size == 0) {
+                done.complete(list());
+            } else {
+                activeCalls.add(this);
+                done.whenComplete((list, e) -> activeCalls.remove(this));
+                if (closed) {
+                    failed(new IllegalStateException("Mapper is closed"));
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<R> list() {
+            return (List<R>) Arrays.asList(results);
+        }
+
+        private void set(int index, R element) {
+            results[index] = element;
+            if (listener != null) {
+                listener.accept(element);
+            }
+            if (stopCondition != null && stopCondition.test(element)) {
+                done.complete(new ArrayList<>(list()));
+                cancelWork();
+            }
+        }
+
+        private void finished(int count) {
+            if (remaining.addAndGet(-count) == 0) {
+                done.complete(list());
+            }
+        }
+
+        private void failed(Throwable e) {
+            done.completeExceptionally(e);
+            cancelWork();
+        }
+
+        private void onCancel(Runnable action) {
+            canceller = action;
+            if (cancelled) {
+                action.run();
+            }
+        }
+
+        private void cancelWork() {
+            cancelled = true;
+            Runnable action = canceller;
+            if (action != null) {
+                action.run();
+            }
+        }
+
+        private List<R> rethrow(ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Mapping failed", e.getCause());
+        }
+
+        public List<R> getList() throws InterruptedException {
+            try {
+                return done.get();
+            } catch (ExecutionException e) {
+                return rethrow(e);
+            } catch (InterruptedException e) {
+                failed(new CancellationException("Caller was interrupted"));
+                throw e;
+            }
+        }
+
+        public List<R> getList(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            try {
+                return done.get(timeout, unit);
+            } catch (ExecutionException e) {
+                return rethrow(e);
+            } catch (InterruptedException | TimeoutException e) {
+                failed(new CancellationException("Mapping was cancelled"));
+                throw e;
+            }
+        }
+    }
+
+    private class ResultSubscription<R> implements Flow.Subscription {
+        private final Flow.Subscriber<? super R> subscriber;
+        private final ResultList<R> results;
+        private final Queue<R> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger drainRequests = new AtomicInteger();
+        private volatile boolean finished;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        private boolean terminated;
+
+        private ResultSubscription(int size, Flow.Subscriber<? super R> subscriber) {
+            this.subscriber = subscriber;
+            results = new ResultList<>(size, this::add, null);
+            activeSubscriptions.add(this);
+            subscriber.onSubscribe(this);
+            results.done.whenComplete((list, e) -> finish(e));
+        }
 
-        private ResultList(int size) {
-            list = new ArrayList<>(Collections.nCopies(size, null));
-            numberOfElements = 0;
+        private void add(R element) {
+            if (element == null) {
+                throw new NullPointerException("Published results can't be null");
+            }
+            queue.add(element);
+            drain();
         }
 
-        public void set(int index, R element) {
-            synchronized (this) {
-                list.set(index, element);
-                if (++numberOfElements == list.size()) {
-                    notify();
+        private void finish(Throwable e) {
+            if (e != null && error == null) {
+                error = e;
+            }
+            finished = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                results.failed(new IllegalArgumentException("Requested count must be positive"));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            results.failed(new CancellationException("Subscription was cancelled"));
+            drain();
+        }
+
+        private void drain() {
+            if (drainRequests.getAndIncrement() == 0) {
+                ForkJoinPool.commonPool().execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            do {
+                if (!terminated) {
+                    try {
+                        deliverAvailable();
+                    } catch (RuntimeException | Error e) {
+                        terminate();
+                        results.failed(e);
+                    }
                 }
+            } while (drainRequests.decrementAndGet() != 0);
+        }
+
+        private void deliverAvailable() {
+            boolean done = finished;
+            Throwable e = error;
+            if (cancelled) {
+                terminate();
+                return;
+            }
+            if (e != null) {
+                terminate();
+                subscriber.onError(e);
+                return;
+            }
+            long requested = demand.get();
+            long sent = 0;
+            R element;
+            while (sent < requested && (element = queue.poll()) != null) {
+                subscriber.onNext(element);
+                sent++;
+            }
+            if (requested != Long.MAX_VALUE) {
+                demand.addAndGet(-sent);
+            }
+            if (done && queue.isEmpty()) {
+                terminate();
+                subscriber.onComplete();
             }
         }
 
-        synchronized public List<R> getList() throws InterruptedException {
-            while (numberOfElements != list.size()) {
-                wait();
+        private void terminate() {
+            terminated = true;
+            queue.clear();
+            activeSubscriptions.remove(this);
+        }
+    }
+
+    private <T, R> void solveChunk(Function<? super T, ? extends R> f, List<? extends T> args,
+                                   int from, int to, ResultList<R> results) {
+        try {
+            int index = from;
+            for (T arg : args.subList(from, to)) {
+                if (results.cancelled) {
+                    return;
+                }
+                results.set(index++, f.apply(arg));
             }
-            return list;
+            results.finished(to - from);
+        } catch (RuntimeException | Error e) {
+            results.failed(e);
         }
     }
 
-    @Override
-    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
+    private <T, R> void submitChunks(Function<? super T, ? extends R> f, List<? extends T> args, ResultList<R> results,
+                                     int priority, int weight) {
+        if (args.isEmpty()) {
+            return;
+        }
+        TaskGroup<T, R> group = new TaskGroup<>(f, args, results, priority, weight);
+        addGroup(group);
+        results.onCancel(group::cancel);
+        wakeUp();
+    }
+
+    private <T, R> void submitPerTask(Function<? super T, ? extends R> f, List<? extends T> args,
+                                      ResultList<R> results) throws InterruptedException {
+        Set<Thread> callThreads = ConcurrentHashMap.newKeySet();
+        results.onCancel(() -> callThreads.forEach(Thread::interrupt));
+        int index = 0;
+        for (T arg : args) {
+            final int finalI = index++;
+            taskPermits.acquire();
+            if (results.cancelled) {
+                taskPermits.release();
+                return;
+            }
+            Thread thread = taskThreads.newThread(() -> {
+                try {
+                    if (!results.cancelled) {
+                        results.set(finalI, f.apply(arg));
+                        results.finished(1);
+                    }
+                } catch (RuntimeException | Error e) {
+                    results.failed(e);
+                } finally {
+                    callThreads.remove(Thread.currentThread());
+                    runningTasks.remove(Thread.currentThread());
+                    taskPermits.release();
+                }
+            });
+            callThreads.add(thread);
+            runningTasks.add(thread);
+            thread.start();
+        }
+    }
+
+    private <T, R> void submitAsync(Function<? super T, ? extends R> f, List<? extends T> args, ResultList<R> results,
+                                    int priority, int weight) {
+        if (taskThreads == null) {
+            submitChunks(f, args, results, priority, weight);
+            return;
+        }
+        taskThreads.newThread(() -> {
+            try {
+                submitPerTask(f, args, results);
+            } catch (InterruptedException e) {
+                results.failed(e);
+            }
+        }).start();
+    }
+
+    private void checkArguments(Function<?, ?> f, List<?> args, int weight) {
         if (f == null || args == null) {
             throw new IllegalArgumentException("Arguments can't be null");
         }
-        ResultList<R> threadsResults = new ResultList<>(args.size());
-        for (int i = 0; i < args.size(); i++) {
-            final int finalI = i;
-            addTask(() -> threadsResults.set(finalI, f.apply(args.get(finalI))));
+        if (closed) {
+            throw new IllegalStateException("Mapper is closed");
+        }
+        if (weight < 1) {
+            throw new IllegalArgumentException("Weight must be positive");
+        }
+    }
+
+    @Override
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
+        return map(f, args, 0, 1);
+    }
+
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args,
+                              int priority, int weight) throws InterruptedException {
+        checkArguments(f, args, weight);
+        ResultList<R> threadsResults = new ResultList<>(args.size(), null, null);
+        if (taskThreads != null) {
+            try {
+                submitPerTask(f, args, threadsResults);
+            } catch (InterruptedException e) {
+                threadsResults.failed(new CancellationException("Caller was interrupted"));
+                throw e;
+            }
+        } else {
+            submitChunks(f, args, threadsResults, priority, weight);
+        }
+        return threadsResults.getList();
+    }
+
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args,
+                              long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        checkArguments(f, args, 1);
+        ResultList<R> threadsResults = new ResultList<>(args.size(), null, null);
+        submitAsync(f, args, threadsResults, 0, 1);
+        return threadsResults.getList(timeout, unit);
+    }
+
+    public <T, R> List<R> mapUntil(Function<? super T, ? extends R> f, List<? extends T> args,
+                                   Predicate<? super R> stopCondition) throws InterruptedException {
+        checkArguments(f, args, 1);
+        if (stopCondition == null) {
+            throw new IllegalArgumentException("Stop condition can't be null");
         }
+        ResultList<R> threadsResults = new ResultList<>(args.size(), null, stopCondition);
+        submitAsync(f, args, threadsResults, 0, 1);
         return threadsResults.getList();
     }
 
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args) {
+        return mapAsync(f, args, 0, 1);
+    }
+
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args,
+                                                     int priority, int weight) {
+        checkArguments(f, args, weight);
+        ResultList<R> threadsResults = new ResultList<>(args.size(), null, null);
+        submitAsync(f, args, threadsResults, priority, weight);
+        CompletableFuture<List<R>> result = threadsResults.done.copy();
+        result.whenComplete((list, e) -> {
+            if (result.isCancelled()) {
+                threadsResults.failed(new CancellationException("Mapping was cancelled"));
+            }
+        });
+        return result;
+    }
+
+    public <T, R> Flow.Publisher<R> mapPublisher(Function<? super T, ? extends R> f, List<? extends T> args) {
+        checkArguments(f, args, 1);
+        return subscriber -> {
+            if (subscriber == null) {
+                throw new NullPointerException("Subscriber can't be null");
+            }
+            ResultSubscription<R> subscription = new ResultSubscription<>(args.size(), subscriber);
+            submitAsync(f, args, subscription.results, 0, 1);
+        };
+    }
+
     @Override
     public void close() {
-        for (Thread thread : threads) {
+        closed = true;
+        for (ResultList<?> call : activeCalls) {
+            call.failed(new CancellationException("Mapper is closed"));
+        }
+        for (ResultSubscription<?> subscription : activeSubscriptions) {
+            subscription.finish(new CancellationException("Mapper is closed"));
+        }
+        sleepLock.lock();
+        try {
+            taskAdded.signalAll();
+        } finally {
+            sleepLock.unlock();
+        }
+        List<Thread> allThreads = new ArrayList<>(Arrays.asList(threads));
+        allThreads.addAll(runningTasks);
+        for (Thread thread : allThreads) {
             if (thread.isAlive()) {
                 thread.interrupt();
             }
         }
-        for (Thread thread : threads) {
+        for (Thread thread : allThreads) {
             try {
                 thread.join();
             } catch (InterruptedException e) {
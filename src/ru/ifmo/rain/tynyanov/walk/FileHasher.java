@@ -0,0 +1,144 @@
+package ru.ifmo.rain.tynyanov.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.RecursiveTask;
+
+class FileHasher {
+    private static final int BUFFER_SIZE = 128 * 1024;
+    private static final long MAP_THRESHOLD = 4 * 1024 * 1024;
+    private static final long MAP_WINDOW = 64 * 1024 * 1024;
+    private static final int MAP_SLICE = 64 * 1024;
+
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    private final HashFunction function;
+
+    FileHasher(HashFunction function) {
+        this.function = function;
+    }
+
+    HashFunction function() {
+        return function;
+    }
+
+    private long readHash(FileChannel channel) throws IOException {
+        HashFunction.State state = function.newState();
+        ByteBuffer buffer = buffers.get();
+        buffer.clear();
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            state.update(buffer);
+            buffer.clear();
+        }
+        return state.digest();
+    }
+
+    private long mapHash(FileChannel channel, long size) throws IOException {
+        HashFunction.State state = function.newState();
+        for (long position = 0; position < size; position += MAP_WINDOW) {
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+            while (window.hasRemaining()) {
+                if (channel.size() < size) {
+                    throw new IOException("File was truncated while being hashed");
+                }
+                ByteBuffer slice = window.slice();
+                slice.limit(Math.min(MAP_SLICE, slice.remaining()));
+                state.update(slice);
+                window.position(window.position() + slice.limit());
+            }
+        }
+        return state.digest();
+    }
+
+    private long chunkHash(FileChannel channel, long start, long end) throws IOException {
+        HashFunction.State state = function.newState();
+        ByteBuffer buffer = buffers.get();
+        for (long position = start; position < end; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            state.update(buffer);
+        }
+        return state.digest();
+    }
+
+    private long combine(long left, long right) {
+        HashFunction.State state = function.newState();
+        ByteBuffer pair = ByteBuffer.allocate(2 * Long.BYTES).putLong(left).putLong(right);
+        pair.flip();
+        state.update(pair);
+        return state.digest();
+    }
+
+    private class ChunkTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long chunkSize;
+        private final long fromChunk;
+        private final long toChunk;
+        private final long size;
+
+        private ChunkTask(FileChannel channel, long chunkSize, long fromChunk, long toChunk, long size) {
+            this.channel = channel;
+            this.chunkSize = chunkSize;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.size = size;
+        }
+
+        @Override
+        protected Long compute() {
+            if (toChunk - fromChunk == 1) {
+                try {
+                    return chunkHash(channel, fromChunk * chunkSize, Math.min(size, toChunk * chunkSize));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            long middle = (fromChunk + toChunk) >>> 1;
+            ChunkTask right = new ChunkTask(channel, chunkSize, middle, toChunk, size);
+            right.fork();
+            long left = new ChunkTask(channel, chunkSize, fromChunk, middle, size).compute();
+            return combine(left, right.join());
+        }
+    }
+
+    long treeHash(final Path file, long chunkSize) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+            return new ChunkTask(channel, chunkSize, 0, chunks, size).invoke();
+        } catch (IOException | UncheckedIOException | UnsupportedOperationException e) {
+            return 0;
+        }
+    }
+
+    long hash(final String fileName) {
+        try {
+            return hash(Paths.get(fileName));
+        } catch (InvalidPathException e) {
+            return 0;
+        }
+    }
+
+    long hash(final Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            return size < MAP_THRESHOLD ? readHash(channel) : mapHash(channel, size);
+        } catch (IOException | UnsupportedOperationException | InternalError e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.ifmo.rain.tynyanov.walk;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+class FileNameReader implements Closeable {
+    private final BufferedReader reader;
+    private final boolean nulDelimited;
+    private final StringBuilder name = new StringBuilder();
+
+    FileNameReader(Reader reader, boolean nulDelimited) {
+        this.reader = new BufferedReader(reader);
+        this.nulDelimited = nulDelimited;
+    }
+
+    String next() throws IOException {
+        if (!nulDelimited) {
+            return reader.readLine();
+        }
+        name.setLength(0);
+        int c;
+        while ((c = reader.read()) != -1 && c != '\0') {
+            name.append((char) c);
+        }
+        if (c == -1 && name.length() == 0) {
+            return null;
+        }
+        return name.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,40 @@
+package ru.ifmo.rain.tynyanov.walk;
+
+import java.nio.ByteBuffer;
+
+class Fnv32HashFunction implements HashFunction {
+    private static final int FNV_PRIME = 0x01000193;
+    private static final int FNV_INITIAL = 0x811c9dc5;
+    private static final int FNV_MOD = 0xff;
+
+    @Override
+    public String name() {
+        return "fnv32";
+    }
+
+    @Override
+    public int digits() {
+        return 8;
+    }
+
+    @Override
+    public State newState() {
+        return new State() {
+            private int hash = FNV_INITIAL;
+
+            @Override
+            public void update(ByteBuffer buffer) {
+                int hash = this.hash;
+                while (buffer.hasRemaining()) {
+                    hash = (hash * FNV_PRIME) ^ (buffer.get() & FNV_MOD);
+                }
+                this.hash = hash;
+            }
+
+            @Override
+            public long digest() {
+                return hash & 0xffffffffL;
+            }
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package ru.ifmo.rain.tynyanov.walk;
+
+import java.nio.ByteBuffer;
+
+class Fnv64HashFunction implements HashFunction {
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long FNV_INITIAL = 0xcbf29ce484222325L;
+    private static final int FNV_MOD = 0xff;
+
+    @Override
+    public String name() {
+        return "fnv64";
+    }
+
+    @Override
+    public int digits() {
+        return 16;
+    }
+
+    @Override
+    public State newState() {
+        return new State() {
+            private long hash = FNV_INITIAL;
+
+            @Override
+            public void update(ByteBuffer buffer) {
+                long hash = this.hash;
+                while (buffer.hasRemaining()) {
+                    hash = (hash * FNV_PRIME) ^ (buffer.get() & FNV_MOD);
+                }
+                this.hash = hash;
+            }
+
+            @Override
+            public long digest() {
+                return hash;
+            }
+        };
+    }
+}
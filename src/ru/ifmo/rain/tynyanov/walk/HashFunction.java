@@ -0,0 +1,30 @@
+package ru.ifmo.rain.tynyanov.walk;
+
+import java.nio.ByteBuffer;
+
+interface HashFunction {
+    interface State {
+        void update(ByteBuffer buffer);
+
+        long digest();
+    }
+
+    String name();
+
+    int digits();
+
+    State newState();
+
+    static HashFunction forName(String name) {
+        switch (name) {
+            case "fnv32":
+                return new Fnv32HashFunction();
+            case "fnv64":
+                return new Fnv64HashFunction();
+            case "xxh64":
+                return new XxHash64Function();
+            default:
+                throw new IllegalArgumentException("Unknown hash function: " + name);
+        }
+    }
+}
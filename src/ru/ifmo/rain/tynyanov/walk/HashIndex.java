@@ -0,0 +1,130 @@
+package ru.ifmo.rain.tynyanov.walk;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+class HashIndex {
+    private static final int MAGIC = 0x57414c4b;
+    private static final int VERSION = 2;
+
+    private final Path file;
+    private final String function;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final long hash;
+
+        private Entry(long size, long modified, String fileKey, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        private Entry(BasicFileAttributes attributes, long hash) {
+            this(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    attributes.fileKey() == null ? "" : attributes.fileKey().toString(), hash);
+        }
+
+        private boolean matches(Entry other) {
+            return size == other.size && modified == other.modified && fileKey.equals(other.fileKey);
+        }
+    }
+
+    private HashIndex(Path file, String function, Map<String, Entry> previous) {
+        this.file = file;
+        this.function = function;
+        this.previous = previous;
+    }
+
+    static HashIndex load(Path file, String function) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!Files.exists(file)) {
+            return new HashIndex(file, function, entries);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(function)) {
+                return new HashIndex(file, function, entries);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                entries.put(path, new Entry(in.readLong(), in.readLong(), in.readUTF(), in.readLong()));
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            entries.clear();
+        }
+        return new HashIndex(file, function, entries);
+    }
+
+    Long get(String path, BasicFileAttributes attributes) {
+        Entry entry = previous.get(path);
+        if (entry == null || !entry.matches(new Entry(attributes, 0))) {
+            return null;
+        }
+        return entry.hash;
+    }
+
+    void put(String path, BasicFileAttributes attributes, long hash) {
+        current.put(path, new Entry(attributes, hash));
+    }
+
+    private Path createTempFile(Path directory) throws IOException {
+        while (true) {
+            Path temp = directory.resolve(file.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // Try another name
+            }
+        }
+    }
+
+    void save() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = createTempFile(directory);
+        try {
+            if (Files.exists(file)) {
+                try {
+                    Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(file));
+                } catch (UnsupportedOperationException e) {
+                    // Permissions are not POSIX here, keep the defaults
+                }
+            }
+            try (FileOutputStream fileOut = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(function);
+                out.writeInt(current.size());
+                for (Map.Entry<String, Entry> entry : current.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().size);
+                    out.writeLong(entry.getValue().modified);
+                    out.writeUTF(entry.getValue().fileKey);
+                    out.writeLong(entry.getValue().hash);
+                }
+                out.flush();
+                fileOut.getFD().sync();
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.ifmo.rain.tynyanov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+class HashWriter implements Closeable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final OutputStream out;
+    private final int digits;
+    private final boolean treeColumn;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    HashWriter(OutputStream out, int digits, boolean treeColumn) {
+        this.out = out;
+        this.digits = digits;
+        this.treeColumn = treeColumn;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (BUFFER_SIZE - position < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    private void writeDigest(long hash) throws IOException {
+        ensureCapacity(digits + 1);
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[position + i] = HEX_DIGITS[(int) hash & 0xf];
+            hash >>>= 4;
+        }
+        position += digits;
+        buffer[position++] = ' ';
+    }
+
+    private void writePlaceholder() throws IOException {
+        ensureCapacity(digits + 1);
+        for (int i = 0; i < digits; i++) {
+            buffer[position++] = '-';
+        }
+        buffer[position++] = ' ';
+    }
+
+    void write(long hash, boolean tree, String fileName) throws IOException {
+        if (!treeColumn) {
+            writeDigest(hash);
+        } else if (tree) {
+            writePlaceholder();
+            writeDigest(hash);
+        } else {
+            writeDigest(hash);
+            writePlaceholder();
+        }
+        for (int i = 0; i < fileName.length(); i++) {
+            ensureCapacity(4);
+            char c = fileName.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < fileName.length()
+                    && Character.isLowSurrogate(fileName.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, fileName.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        ensureCapacity(LINE_SEPARATOR.length);
+        System.arraycopy(LINE_SEPARATOR, 0, buffer, position, LINE_SEPARATOR.length);
+        position += LINE_SEPARATOR.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ru.ifmo.rain.tynyanov.walk;
+
+public class RecursiveWalk {
+    public static void main(String[] args) {
+        Walk.run(args, true);
+    }
+}
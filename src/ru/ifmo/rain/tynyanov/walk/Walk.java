@@ -2,62 +2,274 @@ package ru.ifmo.rain.tynyanov.walk;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.InvalidPathException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class Walk {
-    private static final int FNV_PRIME = 0x01000193;
-    private static final int FNV_INITIAL = 0x811c9dc5;
-    private static final int FNV_MOD = 0xff;
-
-    private static int countHash(final String fileName) {
-        int hash = FNV_INITIAL;
-        try (FileInputStream fileReader = new FileInputStream(fileName)) {
-            byte[] byteArr = new byte[1024];
-            int curByte;
-            while ((curByte = fileReader.read(byteArr)) != -1) {
-                for (int i = 0; i < curByte; i++) {
-                    hash = (hash * FNV_PRIME) ^ (byteArr[i] & FNV_MOD);
-                }
+    private static final int MAX_PENDING_TASKS = 1024;
+    private static final int MAX_THREADS = 32767;
+
+    private final boolean recursive;
+    private final ForkJoinPool pool;
+    private final FileHasher hasher;
+    private final HashIndex index;
+    private final boolean verify;
+    private final boolean nulDelimited;
+    private final boolean directoryRoot;
+    private final long chunkSize;
+
+    private Walk(boolean recursive, int threads, HashFunction function, HashIndex index, boolean verify,
+                 boolean nulDelimited, boolean directoryRoot, long chunkSize) {
+        this.recursive = recursive || directoryRoot;
+        this.chunkSize = chunkSize;
+        this.nulDelimited = nulDelimited;
+        this.directoryRoot = directoryRoot;
+        this.hasher = new FileHasher(function);
+        this.index = index;
+        this.verify = verify;
+        pool = new ForkJoinPool(threads);
+    }
+
+    private HashedFile hashFile(String fileName) {
+        if (index == null && chunkSize == 0) {
+            return new HashedFile(fileName, hasher.hash(fileName), false);
+        }
+        try {
+            Path path = Paths.get(fileName);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            boolean tree = chunkSize > 0 && attributes.size() > chunkSize;
+            String key = path.toAbsolutePath().toString();
+            Long hash = index == null || verify ? null : index.get(key, attributes);
+            if (hash == null) {
+                hash = tree ? hasher.treeHash(path, chunkSize) : hasher.hash(path);
             }
+            if (index != null && hash != 0) {
+                index.put(key, attributes, hash);
+            }
+            return new HashedFile(fileName, hash, tree);
         } catch (InvalidPathException | IOException e) {
-            return 0;
+            return new HashedFile(fileName, 0, false);
         }
-        return hash;
     }
 
-    public static void main(String[] args) {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null ) {
-            System.out.println("Wrong amount of arguments: 2 needed");
+    private static class HashedFile {
+        private final String fileName;
+        private final long hash;
+        private final boolean tree;
+
+        private HashedFile(String fileName, long hash, boolean tree) {
+            this.fileName = fileName;
+            this.hash = hash;
+            this.tree = tree;
+        }
+    }
+
+    private void enqueue(HashWriter writer, Deque<ForkJoinTask<HashedFile>> pending,
+                         ForkJoinTask<HashedFile> task) throws IOException {
+        pending.add(task);
+        if (pending.size() == MAX_PENDING_TASKS) {
+            write(writer, pending.poll().join());
+        }
+    }
+
+    private void enqueueError(HashWriter writer, Deque<ForkJoinTask<HashedFile>> pending,
+                              String fileName) throws IOException {
+        enqueue(writer, pending, pool.submit(() -> new HashedFile(fileName, 0, false)));
+    }
+
+    private void enqueueFile(HashWriter writer, Deque<ForkJoinTask<HashedFile>> pending,
+                             String fileName) throws IOException {
+        if (recursive) {
+            Path path;
+            try {
+                path = Paths.get(fileName);
+            } catch (InvalidPathException e) {
+                enqueueError(writer, pending, fileName);
+                return;
+            }
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                enqueueDirectory(writer, pending, path);
+                return;
+            }
+        }
+        enqueue(writer, pending, pool.submit(() -> hashFile(fileName)));
+    }
+
+    private void enqueueDirectory(HashWriter writer, Deque<ForkJoinTask<HashedFile>> pending,
+                                  Path directory) throws IOException {
+        DirectoryStream<Path> children;
+        try {
+            children = Files.newDirectoryStream(directory);
+        } catch (IOException e) {
+            enqueueError(writer, pending, directory.toString());
+            return;
+        }
+        try (children) {
+            for (Path child : children) {
+                enqueueFile(writer, pending, child.toString());
+            }
+        } catch (DirectoryIteratorException e) {
+            enqueueError(writer, pending, directory.toString());
+        }
+    }
+
+    private void write(HashWriter writer, HashedFile file) throws IOException {
+        writer.write(file.hash, file.tree, file.fileName);
+    }
+
+    private FileNameReader openInput(String inputFile) throws IOException {
+        if (directoryRoot) {
+            return new FileNameReader(new StringReader(inputFile), true);
+        }
+        InputStream in;
+        if (inputFile.equals("-")) {
+            in = new FilterInputStream(System.in) {
+                @Override
+                public void close() {
+                    // System.in stays open for the caller
+                }
+            };
         } else {
-            try (BufferedReader inputReader = new BufferedReader(new InputStreamReader(
-                    new FileInputStream(args[0]), StandardCharsets.UTF_8))) {
-                String fileName;
-                String outputFile = new File(args[1]).getParent();
-                if (outputFile != null) {
-                    File directory = new File(outputFile);
-                    if (!directory.exists()) {
-                        directory.mkdirs();
-                    }
+            in = new FileInputStream(inputFile);
+        }
+        return new FileNameReader(new InputStreamReader(in, StandardCharsets.UTF_8), nulDelimited);
+    }
+
+    private void walk(String inputFile, String outputFile) {
+        try (FileNameReader inputReader = openInput(inputFile)) {
+            String fileName;
+            String outputDir = new File(outputFile).getParent();
+            if (outputDir != null) {
+                File directory = new File(outputDir);
+                if (!directory.exists()) {
+                    directory.mkdirs();
                 }
-                try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
-                        new FileOutputStream(args[1]), StandardCharsets.UTF_8))) {
-                    fileName = inputReader.readLine();
-                    while (fileName != null) {
-                        int curHash = countHash(fileName);
-                        writer.write(String.format("%08x", curHash) + " " + fileName);
-                        writer.newLine();
-                        fileName = inputReader.readLine();
-                    }
-                } catch (IOException e) {
-                    System.out.println("Error while working with output file: " + args[1]);
+            }
+            try (HashWriter writer = new HashWriter(new FileOutputStream(outputFile),
+                    hasher.function().digits(), chunkSize > 0)) {
+                Deque<ForkJoinTask<HashedFile>> pending = new ArrayDeque<>();
+                fileName = inputReader.next();
+                while (fileName != null) {
+                    enqueueFile(writer, pending, fileName);
+                    fileName = inputReader.next();
+                }
+                while (!pending.isEmpty()) {
+                    write(writer, pending.poll().join());
                 }
-            } catch (FileNotFoundException e) {
-                System.out.println("Input file not found");
-            } catch (UnsupportedEncodingException e) {
-                System.out.println("Encoding is not supported");
             } catch (IOException e) {
-                System.out.println("Error while reading input file");
+                System.out.println("Error while working with output file: " + outputFile);
+                return;
+            }
+            if (index != null) {
+                try {
+                    index.save();
+                } catch (IOException e) {
+                    System.out.println("Error while writing index file: " + e.getMessage());
+                }
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("Input file not found");
+        } catch (UnsupportedEncodingException e) {
+            System.out.println("Encoding is not supported");
+        } catch (IOException e) {
+            System.out.println("Error while reading input file");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    static void run(String[] args, boolean recursive) {
+        if (args == null) {
+            System.out.println("Wrong amount of arguments: 2 needed");
+            return;
+        }
+        for (String arg : args) {
+            if (arg == null) {
+                System.out.println("All arguments must be not null");
+                return;
+            }
+        }
+        int threads = 1;
+        String function = "fnv32";
+        String indexFile = null;
+        boolean verify = false;
+        boolean nulDelimited = false;
+        boolean directoryRoot = false;
+        long chunkSize = 0;
+        int i = 0;
+        try {
+            for (; i < args.length - 2; i++) {
+                switch (args[i]) {
+                    case "-r":
+                        recursive = true;
+                        break;
+                    case "-j":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-a":
+                        function = args[++i];
+                        break;
+                    case "-i":
+                        indexFile = args[++i];
+                        break;
+                    case "-v":
+                        verify = true;
+                        break;
+                    case "-0":
+                        nulDelimited = true;
+                        break;
+                    case "-d":
+                        directoryRoot = true;
+                        break;
+                    case "-c":
+                        chunkSize = Long.parseLong(args[++i]);
+                        break;
+                    default:
+                        System.out.println("Unknown option: " + args[i]);
+                        return;
+                }
             }
+        } catch (NumberFormatException e) {
+            System.out.println("Option value can't be converted to number: " + e.getMessage());
+            return;
+        }
+        if (args.length - i != 2) {
+            System.out.println("Wrong amount of arguments: 2 needed");
+            return;
+        }
+        if (threads < 1 || threads > MAX_THREADS) {
+            System.out.println("Number of threads must be between 1 and " + MAX_THREADS);
+            return;
         }
+        if (chunkSize < 0) {
+            System.out.println("Chunk size must be positive");
+            return;
+        }
+        HashFunction hashFunction;
+        try {
+            hashFunction = HashFunction.forName(function);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        HashIndex index = null;
+        if (indexFile != null) {
+            try {
+                String indexFunction = chunkSize > 0 ? hashFunction.name() + "/" + chunkSize : hashFunction.name();
+                index = HashIndex.load(Paths.get(indexFile), indexFunction);
+            } catch (InvalidPathException | IOException e) {
+                System.out.println("Error while reading index file: " + e.getMessage());
+                return;
+            }
+        }
+        new Walk(recursive, threads, hashFunction, index, verify, nulDelimited, directoryRoot, chunkSize).walk(args[i], args[i + 1]);
+    }
+
+    public static void main(String[] args) {
+        run(args, false);
     }
 }
@@ -0,0 +1,156 @@
+package ru.ifmo.rain.tynyanov.walk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class WalkBenchmark {
+    private static final String[] FUNCTIONS = {"fnv32", "fnv64", "xxh64"};
+    private static final int WARMUP_ITERATIONS = 1;
+    private static final int ITERATIONS = 3;
+    private static final int MB = 1024 * 1024;
+    private static final int MAX_SCALE = 1024;
+
+    private final Path root;
+    private final Random random = new Random(23084701432182342L);
+
+    private static class Corpus {
+        private final String name;
+        private final Path input;
+        private final boolean recursive;
+        private int files;
+        private long bytes;
+
+        private Corpus(String name, Path input, boolean recursive) {
+            this.name = name;
+            this.input = input;
+            this.recursive = recursive;
+        }
+    }
+
+    private WalkBenchmark(Path root) {
+        this.root = root;
+    }
+
+    private Path randomFile(Corpus corpus, Path dir, long size) throws IOException {
+        Path file = dir.resolve(corpus.name + "-" + corpus.files);
+        byte[] content = new byte[(int) Math.min(size, MB)];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += content.length) {
+                random.nextBytes(content);
+                out.write(content, 0, (int) Math.min(content.length, size - written));
+            }
+        }
+        corpus.files++;
+        corpus.bytes += size;
+        return file;
+    }
+
+    private Corpus flatCorpus(String name, int smallFiles, int smallSize, int largeFiles, long largeSize) throws IOException {
+        Path dir = Files.createDirectories(root.resolve(name));
+        Corpus corpus = new Corpus(name, root.resolve(name + ".in"), false);
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < smallFiles; i++) {
+            files.add(randomFile(corpus, dir, random.nextInt(smallSize + 1)).toString());
+        }
+        for (int i = 0; i < largeFiles; i++) {
+            files.add(randomFile(corpus, dir, largeSize).toString());
+        }
+        Collections.shuffle(files, random);
+        Files.write(corpus.input, files, StandardCharsets.UTF_8);
+        return corpus;
+    }
+
+    private void randomDirs(Corpus corpus, Path dir, int n, int depth, int maxSize) throws IOException {
+        Files.createDirectories(dir);
+        for (int i = random.nextInt(n + 1); i < n; i++) {
+            randomFile(corpus, dir, random.nextInt(maxSize + 1));
+        }
+        if (depth > 0) {
+            for (int i = 0; i < n; i++) {
+                randomDirs(corpus, dir.resolve(Integer.toString(i)), n, depth - 1, maxSize);
+            }
+        }
+    }
+
+    private Corpus treeCorpus(String name, int n, int depth, int maxSize) throws IOException {
+        Corpus corpus = new Corpus(name, root.resolve(name + ".in"), true);
+        Path dir = root.resolve(name);
+        randomDirs(corpus, dir, n, depth, maxSize);
+        Files.write(corpus.input, Collections.singletonList(dir.toString()), StandardCharsets.UTF_8);
+        return corpus;
+    }
+
+    private long runOnce(Corpus corpus, String function, int threads) {
+        List<String> args = new ArrayList<>(List.of("-a", function, "-j", Integer.toString(threads)));
+        if (corpus.recursive) {
+            args.add("-r");
+        }
+        args.add(corpus.input.toString());
+        args.add(root.resolve(corpus.name + ".out").toString());
+        long start = System.nanoTime();
+        Walk.run(args.toArray(new String[0]), false);
+        return System.nanoTime() - start;
+    }
+
+    private void measure(Corpus corpus, String function, int threads) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runOnce(corpus, function, threads);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ITERATIONS; i++) {
+            best = Math.min(best, runOnce(corpus, function, threads));
+        }
+        double seconds = best / 1e9;
+        System.out.println(String.format("%s,%s,%d,%d,%.1f,%.0f,%.1f", corpus.name, function, threads,
+                corpus.files, corpus.bytes / (double) MB, corpus.files / seconds, corpus.bytes / seconds / MB));
+    }
+
+    private void run(int scale) throws IOException {
+        List<Corpus> corpora = List.of(
+                flatCorpus("tiny", 20_000 * scale, 1024, 0, 0),
+                flatCorpus("huge", 0, 0, 4, 64L * MB * scale),
+                flatCorpus("mixed", 5_000 * scale, 16 * 1024, 4, 16L * MB * scale),
+                treeCorpus("deep", 4, 6 + 31 - Integer.numberOfLeadingZeros(scale), 4096)
+        );
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(Runtime.getRuntime().availableProcessors());
+        System.out.println("corpus,hash,threads,files,size(MB),files/s,MB/s");
+        for (Corpus corpus : corpora) {
+            for (String function : FUNCTIONS) {
+                for (int threads : threadCounts) {
+                    measure(corpus, function, threads);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args == null || args.length < 1 || args.length > 2 || args[0] == null) {
+            System.out.println("Usage: WalkBenchmark <work directory> [scale]");
+            return;
+        }
+        try {
+            int scale = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+            if (scale < 1 || scale > MAX_SCALE) {
+                System.out.println("Scale must be between 1 and " + MAX_SCALE);
+                return;
+            }
+            new WalkBenchmark(Paths.get(args[0])).run(scale);
+        } catch (NumberFormatException e) {
+            System.out.println("Scale can't be converted to int: " + e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Error while generating corpus: " + e.getMessage());
+        }
+    }
+}
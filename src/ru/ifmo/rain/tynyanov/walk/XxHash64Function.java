@@ -0,0 +1,107 @@
+package ru.ifmo.rain.tynyanov.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+class XxHash64Function implements HashFunction {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    @Override
+    public String name() {
+        return "xxh64";
+    }
+
+    @Override
+    public int digits() {
+        return 16;
+    }
+
+    @Override
+    public State newState() {
+        return new XxState();
+    }
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long merge(long acc, long value) {
+        return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+
+    private static class XxState implements State {
+        private long v1 = PRIME1 + PRIME2;
+        private long v2 = PRIME2;
+        private long v3 = 0;
+        private long v4 = -PRIME1;
+        private long total;
+        private final ByteBuffer memory = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+        private void stripe(ByteBuffer buffer) {
+            v1 = round(v1, buffer.getLong());
+            v2 = round(v2, buffer.getLong());
+            v3 = round(v3, buffer.getLong());
+            v4 = round(v4, buffer.getLong());
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            total += buffer.remaining();
+            if (memory.position() > 0) {
+                while (memory.hasRemaining() && buffer.hasRemaining()) {
+                    memory.put(buffer.get());
+                }
+                if (memory.hasRemaining()) {
+                    return;
+                }
+                memory.flip();
+                stripe(memory);
+                memory.clear();
+            }
+            while (buffer.remaining() >= STRIPE) {
+                stripe(buffer);
+            }
+            memory.put(buffer);
+        }
+
+        @Override
+        public long digest() {
+            long hash;
+            if (total >= STRIPE) {
+                hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                hash = merge(hash, v1);
+                hash = merge(hash, v2);
+                hash = merge(hash, v3);
+                hash = merge(hash, v4);
+            } else {
+                hash = PRIME5;
+            }
+            hash += total;
+
+            ByteBuffer tail = memory.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            tail.flip();
+            while (tail.remaining() >= Long.BYTES) {
+                hash = Long.rotateLeft(hash ^ round(0, tail.getLong()), 27) * PRIME1 + PRIME4;
+            }
+            if (tail.remaining() >= Integer.BYTES) {
+                hash = Long.rotateLeft(hash ^ (tail.getInt() & 0xffffffffL) * PRIME1, 23) * PRIME2 + PRIME3;
+            }
+            while (tail.hasRemaining()) {
+                hash = Long.rotateLeft(hash ^ (tail.get() & 0xff) * PRIME5, 11) * PRIME1;
+            }
+
+            hash ^= hash >>> 33;
+            hash *= PRIME2;
+            hash ^= hash >>> 29;
+            hash *= PRIME3;
+            hash ^= hash >>> 32;
+            return hash;
+        }
+    }
+}
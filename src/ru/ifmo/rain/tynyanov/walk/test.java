@@ -2,6 +2,6 @@ package ru.ifmo.rain.tynyanov.walk;
 
 public class test {
     public static void main(String[] args) {
-        new Walk().main(new String[]{"1", "a/a/a.txt"});
+        Walk.main(new String[]{"1", "a/a/a.txt"});
     }
 }